@@ -0,0 +1,88 @@
+package com.datalake.api.controller;
+
+import com.datalake.api.service.AdmissionControlService;
+import com.datalake.api.service.AdmissionControlService.Admission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Applies admission control to POST /api/v1/upload.
+ *
+ * Runs as a servlet filter because the DispatcherServlet parses the multipart body
+ * before any controller or interceptor sees the request. For the same reason the caller
+ * is identified from the X-User-Id header or the userId query parameter only: reading a
+ * form field would force the whole upload to be read first. Callers identified neither way
+ * (including those sending only the userId form field) are rate limited by remote address.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/api/v1/upload";
+    private static final String USER_HEADER = "X-User-Id";
+
+    private final AdmissionControlService admissionControlService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !("POST".equals(request.getMethod()) && UPLOAD_PATH.equals(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Admission admission = admissionControlService.tryAdmit(resolveUser(request), request.getRemoteAddr(),
+                request.getContentLengthLong());
+
+        if (!admission.admitted()) {
+            response.setStatus(admission.status().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+            // the body is left unread; closing the connection stops the client sending the rest
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Map.of(
+                    "error", admission.status().value() == 429 ? "rate limit exceeded" : "service overloaded",
+                    "reason", admission.reason(),
+                    "retryAfterSeconds", admission.retryAfterSeconds()));
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionControlService.release(admission);
+        }
+    }
+
+    /**
+     * @return the caller's user id, or null if it cannot be known without reading the body
+     */
+    String resolveUser(HttpServletRequest request) {
+        String userId = request.getHeader(USER_HEADER);
+        if ((userId == null || userId.isBlank()) && request.getQueryString() != null) {
+            // parsed by hand: getParameter() on a multipart request would read the body
+            String raw = UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                    .getQueryParams().getFirst("userId");
+            userId = raw != null ? UriUtils.decode(raw, StandardCharsets.UTF_8) : null;
+        }
+        return userId != null && !userId.isBlank() ? userId : null;
+    }
+}
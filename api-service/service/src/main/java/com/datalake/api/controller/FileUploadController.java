@@ -2,6 +2,7 @@ package com.datalake.api.controller;
 
 import com.datalake.api.model.UploadJob;
 import com.datalake.api.service.FileStorageService;
+import com.datalake.api.service.IngestionMetrics;
 import com.datalake.api.service.JobStatusService;
 import com.datalake.api.service.RabbitMQService;
 
@@ -11,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,6 +22,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controller that accepts file uploads and enqueues processing jobs.
@@ -33,20 +36,46 @@ public class FileUploadController {
 	private final FileStorageService storageService;
 	private final JobStatusService jobStatusService;
 	private final RabbitMQService rabbitMQService;
+	private final IngestionMetrics ingestionMetrics;
+
+	// job_history.user_id and table_name are VARCHAR(255)
+	private static final int MAX_NAME_LENGTH = 255;
 
 	@PostMapping("/upload")
 	public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file,
 										@RequestParam(value = "userId", required = false) String userId,
-										@RequestParam(value = "tableName", required = false) String tableName) {
+										@RequestParam(value = "tableName", required = false) String tableName,
+										@RequestHeader(value = "X-User-Id", required = false) String userHeader) {
 		try {
+			// the header is what admission control rate-limits on, so the job must be recorded under it too
+			userId = blankToNull(userId);
+			userHeader = blankToNull(userHeader);
+			if (userHeader != null) {
+				if (userId != null && !userId.equals(userHeader)) {
+					return ResponseEntity.badRequest().body(Map.of("error", "userId does not match X-User-Id"));
+				}
+				userId = userHeader;
+			}
+
 			if (file == null || file.isEmpty()) {
 				return ResponseEntity.badRequest().body(Map.of("error", "file is required"));
 			}
+			if (tooLong(userId) || tooLong(tableName)) {
+				return ResponseEntity.badRequest().body(Map.of("error",
+						"userId and tableName must be at most " + MAX_NAME_LENGTH + " characters"));
+			}
 			// generate jobId first so we can use it in the object path
 			String jobId = UUID.randomUUID().toString();
 
 			// store the file to MinIO under uploads/{jobId}/<filename>
+			long uploadStart = System.nanoTime();
 			String storedPath = storageService.storeFile(file, jobId);
+			long uploadNanos = System.nanoTime() - uploadStart;
+			ingestionMetrics.recordUpload(file.getSize(), uploadNanos);
+
+			// worker stage timings are merged into this map when it reports back
+			Map<String, Long> stageTimings = new HashMap<>();
+			stageTimings.put(IngestionMetrics.STAGE_UPLOAD, TimeUnit.NANOSECONDS.toMillis(uploadNanos));
 
 			// create job object
 			UploadJob job = UploadJob.builder()
@@ -59,10 +88,19 @@ public class FileUploadController {
 					.timestamp(LocalDateTime.now())
 					.status("queued")
 					.message("File received and queued")
+					.stageTimings(stageTimings)
 					.build();
 
 			// persist job status and enqueue
+			long saveStart = System.nanoTime();
 			jobStatusService.saveJobStatus(job);
+			long saveNanos = System.nanoTime() - saveStart;
+			ingestionMetrics.recordRedisWrite(saveNanos);
+
+			// travels in the job payload; the worker echoes it back in its status reports,
+			// so it reaches the stored job without another Redis round-trip on this thread.
+			// The publish stage ends after the payload has left, so it is only a metric (see RabbitMQService).
+			stageTimings.put(IngestionMetrics.STAGE_REDIS_WRITE, TimeUnit.NANOSECONDS.toMillis(saveNanos));
 			rabbitMQService.sendJob(job);
 
 			Map<String, Object> resp = new HashMap<>();
@@ -77,4 +115,12 @@ public class FileUploadController {
 					.body(Map.of("error", "upload failed", "details", e.getMessage()));
 		}
 	}
+
+	private static String blankToNull(String value) {
+		return value != null && !value.isBlank() ? value : null;
+	}
+
+	private static boolean tooLong(String value) {
+		return value != null && value.length() > MAX_NAME_LENGTH;
+	}
 }
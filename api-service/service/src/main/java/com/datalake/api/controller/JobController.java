@@ -1,6 +1,8 @@
 package com.datalake.api.controller;
 
+import com.datalake.api.model.JobPage;
 import com.datalake.api.model.UploadJob;
+import com.datalake.api.service.JobHistoryService;
 import com.datalake.api.service.JobStatusService;
 import com.datalake.api.service.RabbitMQService;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
@@ -18,6 +21,7 @@ import java.util.Map;
  * 
  * Responsibilities:
  *  - Retrieve the current status of a specific upload job.
+ *  - Page through the job history by user, table and status.
  *  - Fetch RabbitMQ queue statistics (message and consumer counts).
  */
 @RestController
@@ -29,9 +33,40 @@ public class JobController {
     // Service that stores and retrieves job status information
     private final JobStatusService jobStatusService;
 
+    // Durable job history used for listing
+    private final JobHistoryService jobHistoryService;
+
     // Service that interacts with RabbitMQ to get queue statistics
     private final RabbitMQService rabbitMQService;
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * GET /api/v1/jobs?userId=&tableName=&status=&cursor=&limit=
+     * 
+     * Lists jobs newest first. All filters are optional and combine with AND.
+     * Pass the returned nextCursor as cursor to fetch the following page.
+     * 
+     * @return 200 OK with { jobs, nextCursor }, or 400 if the cursor or limit is invalid
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<?> listJobs(@RequestParam(value = "userId", required = false) String userId,
+                                      @RequestParam(value = "tableName", required = false) String tableName,
+                                      @RequestParam(value = "status", required = false) String status,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        try {
+            JobPage page = jobHistoryService.listJobs(userId, tableName, status, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * GET /api/v1/jobs/{jobId}
      * 
@@ -58,6 +93,7 @@ public class JobController {
      * - queue name
      * - number of pending messages
      * - number of connected consumers
+     * - the same counts per shard queue
      * 
      * @return 200 OK with queue statistics in JSON format
      */
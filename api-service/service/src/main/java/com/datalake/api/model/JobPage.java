@@ -0,0 +1,22 @@
+package com.datalake.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of job history. nextCursor is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobPage {
+
+    private List<UploadJob> jobs;
+
+    private String nextCursor;
+}
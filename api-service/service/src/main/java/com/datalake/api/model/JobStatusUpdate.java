@@ -0,0 +1,35 @@
+package com.datalake.api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Status report published by the Spark worker on the job status queue.
+ * Counters and timings are only present once the worker has reached that stage.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JobStatusUpdate {
+
+    private String jobId;
+
+    private String status; // processing, completed, failed
+
+    private String message;
+
+    private Map<String, Long> stageTimings;
+
+    private Long rowsWritten;
+
+    private Long filesWritten;
+
+    private Long bytesWritten;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Builder
@@ -32,4 +33,14 @@ public class UploadJob {
     private String status; // queued, processing, completed, failed
     
     private String message;
-}
\ No newline at end of file
+
+    // Per-stage durations in milliseconds (upload, queue_wait, download, read, write, commit, ...)
+    private Map<String, Long> stageTimings;
+
+    // Taken from the committed Iceberg snapshot summary, not from a recount
+    private Long rowsWritten;
+
+    private Long filesWritten;
+
+    private Long bytesWritten;
+}
@@ -0,0 +1,260 @@
+package com.datalake.api.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether an upload may start, before its body is read.
+ *
+ * Checks, in order:
+ *  - queue depth: pending jobs in total, and a much lower limit for any shard queue no
+ *    worker is consuming (503)
+ *  - in-flight bytes: declared Content-Length of uploads currently being received (503)
+ *  - per-caller token bucket: uploads per minute with a burst allowance (429); keyed on the
+ *    user id when the caller gives one, otherwise on its remote address
+ *
+ * The token is taken last so a 503 caused by server load never costs the caller rate budget;
+ * if the rate check fails, the reserved bytes are handed back.
+ *
+ * Queue stats come from RabbitMQService.getQueueStats, which is a broker round-trip, so
+ * they are cached and refreshed by at most one request thread at a time. If the stats
+ * cannot be read, the queue check is skipped rather than blocking all uploads.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionControlService {
+
+    private final RabbitMQService rabbitMQService;
+    private final IngestionMetrics ingestionMetrics;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.max-in-flight-bytes:1GB}")
+    private DataSize maxInFlightBytes;
+
+    // Charged for uploads without a Content-Length (chunked), matching the multipart limit
+    @Value("${spring.servlet.multipart.max-request-size:100MB}")
+    private DataSize unknownLengthBytes;
+
+    @Value("${admission.max-queue-depth:1000}")
+    private long maxQueueDepth;
+
+    // Per shard: one unconsumed shard is enough, since its tables are not being processed at all
+    @Value("${admission.max-queue-depth-without-consumers:1}")
+    private long maxQueueDepthWithoutConsumers;
+
+    @Value("${admission.queue-stats-refresh-ms:2000}")
+    private long queueStatsRefreshMs;
+
+    @Value("${admission.retry-after-seconds:30}")
+    private long overloadRetryAfterSeconds;
+
+    @Value("${admission.user-uploads-per-minute:60}")
+    private double userUploadsPerMinute;
+
+    @Value("${admission.user-burst:10}")
+    private double userBurst;
+
+    @Value("${admission.max-tracked-users:10000}")
+    private int maxTrackedUsers;
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    // Source of System.nanoTime() readings for the token buckets; replaced in tests
+    LongSupplier nanoClock = System::nanoTime;
+    // LRU-bounded so client-chosen user ids cannot grow it without limit; guarded by itself
+    private Map<String, TokenBucket> buckets;
+
+    private final AtomicBoolean refreshingQueueStats = new AtomicBoolean();
+    private volatile QueueSnapshot queueSnapshot;
+
+    /**
+     * Outcome of an admission check. When admitted, {@code bytes} must be handed back via
+     * {@link #release(Admission)} once the request completes.
+     */
+    public record Admission(boolean admitted, HttpStatus status, String reason, long retryAfterSeconds, long bytes) {
+
+        static Admission admit(long bytes) {
+            return new Admission(true, HttpStatus.ACCEPTED, null, 0, bytes);
+        }
+
+        static Admission reject(HttpStatus status, String reason, long retryAfterSeconds) {
+            return new Admission(false, status, reason, retryAfterSeconds, 0);
+        }
+    }
+
+    private record QueueSnapshot(boolean available, long messageCount, long maxUnconsumedShardDepth, long fetchedAtMillis) {}
+
+    @PostConstruct
+    public void init() {
+        ingestionMetrics.bindInFlightBytes(inFlightBytes);
+        buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxTrackedUsers;
+            }
+        };
+    }
+
+    /**
+     * Check whether an upload may proceed.
+     *
+     * @param userId        caller identity used for rate limiting, or null if the caller did not identify itself
+     * @param remoteAddr    client address, rate limited instead of the user when userId is null
+     * @param contentLength declared request size, or -1 if unknown
+     */
+    public Admission tryAdmit(String userId, String remoteAddr, long contentLength) {
+        if (!enabled) {
+            return Admission.admit(0);
+        }
+
+        long bytes = contentLength >= 0 ? contentLength : unknownLengthBytes.toBytes();
+
+        Admission rejection = checkQueue();
+        if (rejection == null && !reserveBytes(bytes)) {
+            rejection = Admission.reject(HttpStatus.SERVICE_UNAVAILABLE, "in_flight_bytes", 1);
+        }
+        // prefixed so a user id can never collide with (and drain) an address bucket
+        String rateKey = userId != null ? "user:" + userId : "addr:" + remoteAddr;
+        if (rejection == null) {
+            rejection = checkRate(rateKey);
+            if (rejection != null) {
+                inFlightBytes.addAndGet(-bytes);
+            }
+        }
+
+        if (rejection != null) {
+            ingestionMetrics.recordRejection(rejection.reason());
+            log.warn("Upload rejected - Caller: {}, Reason: {}, Retry-After: {}s",
+                     rateKey, rejection.reason(), rejection.retryAfterSeconds());
+            return rejection;
+        }
+
+        return Admission.admit(bytes);
+    }
+
+    /**
+     * Return the bytes reserved by an admitted upload.
+     */
+    public void release(Admission admission) {
+        if (admission.admitted() && admission.bytes() > 0) {
+            inFlightBytes.addAndGet(-admission.bytes());
+        }
+    }
+
+    private boolean reserveBytes(long bytes) {
+        long max = maxInFlightBytes.toBytes();
+        while (true) {
+            long current = inFlightBytes.get();
+            // an idle service always admits one request, even one larger than the limit
+            if (current > 0 && current + bytes > max) {
+                return false;
+            }
+            if (inFlightBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private Admission checkQueue() {
+        QueueSnapshot snapshot = currentQueueSnapshot();
+        if (snapshot == null || !snapshot.available()) {
+            return null;
+        }
+        if (snapshot.maxUnconsumedShardDepth() > 0 && snapshot.maxUnconsumedShardDepth() >= maxQueueDepthWithoutConsumers) {
+            return Admission.reject(HttpStatus.SERVICE_UNAVAILABLE, "no_consumers", overloadRetryAfterSeconds);
+        }
+        if (snapshot.messageCount() >= maxQueueDepth) {
+            return Admission.reject(HttpStatus.SERVICE_UNAVAILABLE, "queue_depth", overloadRetryAfterSeconds);
+        }
+        return null;
+    }
+
+    private QueueSnapshot currentQueueSnapshot() {
+        QueueSnapshot snapshot = queueSnapshot;
+        long now = System.currentTimeMillis();
+
+        if ((snapshot == null || now - snapshot.fetchedAtMillis() >= queueStatsRefreshMs)
+                && refreshingQueueStats.compareAndSet(false, true)) {
+            try {
+                Map<String, Object> stats = rabbitMQService.getQueueStats();
+                snapshot = new QueueSnapshot(
+                        "available".equals(stats.get("status")),
+                        toLong(stats.get("messageCount")),
+                        toLong(stats.get("maxUnconsumedShardDepth")),
+                        now);
+                queueSnapshot = snapshot;
+            } finally {
+                refreshingQueueStats.set(false);
+            }
+        }
+
+        return snapshot;
+    }
+
+    private Admission checkRate(String rateKey) {
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket;
+        synchronized (buckets) {
+            bucket = buckets.computeIfAbsent(rateKey, key -> new TokenBucket(userBurst, now));
+        }
+        long waitNanos = bucket.tryConsume(now, tokensPerNano(), userBurst);
+        if (waitNanos == 0) {
+            return null;
+        }
+
+        long retryAfter = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        return Admission.reject(HttpStatus.TOO_MANY_REQUESTS, "user_rate", retryAfter);
+    }
+
+    private double tokensPerNano() {
+        return userUploadsPerMinute / TimeUnit.MINUTES.toNanos(1);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(double burst, long now) {
+            this.tokens = burst;
+            this.lastRefillNanos = now;
+        }
+
+        /**
+         * Take one token if available.
+         *
+         * @return 0 if a token was taken, otherwise nanoseconds until one will be
+         */
+        synchronized long tryConsume(long now, double tokensPerNano, double burst) {
+            refill(now, tokensPerNano, burst);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            // floored: rounding up here could push Retry-After a whole second past the real wait
+            return Math.max(1, (long) ((1 - tokens) / tokensPerNano));
+        }
+
+        private void refill(long now, double tokensPerNano, double burst) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.datalake.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters for the API side of the ingestion pipeline.
+ *
+ * Every stage is recorded on the same timer name with a "stage" tag so the
+ * API and worker series line up in Prometheus (datalake_api_stage_seconds vs
+ * datalake_worker_stage_seconds). Percentile histograms are published so
+ * latency quantiles can be aggregated across instances.
+ */
+@Component
+public class IngestionMetrics {
+
+    public static final String STAGE_UPLOAD = "upload";
+    public static final String STAGE_REDIS_WRITE = "redis_write";
+    public static final String STAGE_PUBLISH = "publish";
+
+    private final Timer uploadTimer;
+    private final Timer redisWriteTimer;
+    private final Timer publishTimer;
+    private final DistributionSummary uploadBytes;
+    private final Counter historyDropped;
+    private final MeterRegistry registry;
+
+    public IngestionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.uploadTimer = stageTimer(registry, STAGE_UPLOAD);
+        this.redisWriteTimer = stageTimer(registry, STAGE_REDIS_WRITE);
+        this.publishTimer = stageTimer(registry, STAGE_PUBLISH);
+        this.uploadBytes = DistributionSummary.builder("datalake.api.upload.bytes")
+                .description("Size of files accepted by the upload endpoint")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.historyDropped = Counter.builder("datalake.api.job_history.dropped")
+                .description("Job history writes dropped instead of persisted")
+                .register(registry);
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("datalake.api.stage")
+                .description("Latency of each API-side ingestion stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Record a completed MinIO upload: its duration and the number of bytes stored.
+     */
+    public void recordUpload(long bytes, long durationNanos) {
+        uploadTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        uploadBytes.record(bytes);
+    }
+
+    /**
+     * Record the first save of a job on the upload path; later status updates are not timed.
+     */
+    public void recordRedisWrite(long durationNanos) {
+        redisWriteTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublish(long durationNanos) {
+        publishTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count an upload turned away by admission control, tagged with why.
+     */
+    public void recordRejection(String reason) {
+        Counter.builder("datalake.api.upload.rejected")
+                .description("Uploads rejected by admission control")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Count a job history write that was dropped (buffer full or row rejected by Postgres).
+     */
+    public void recordHistoryDropped() {
+        historyDropped.increment();
+    }
+
+    /**
+     * Expose the bytes of uploads currently being received.
+     */
+    public void bindInFlightBytes(AtomicLong inFlightBytes) {
+        Gauge.builder("datalake.api.upload.inflight", inFlightBytes, AtomicLong::get)
+                .description("Declared size of uploads currently in progress")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
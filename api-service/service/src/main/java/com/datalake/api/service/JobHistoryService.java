@@ -0,0 +1,350 @@
+package com.datalake.api.service;
+
+import com.datalake.api.model.JobPage;
+import com.datalake.api.model.UploadJob;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable job history in Postgres (table job_history, see schema.sql).
+ *
+ * Writes are queued and flushed in JDBC batches by a background thread so the upload
+ * path never waits on Postgres. Only the latest state of each job is kept while it waits,
+ * and the upsert refuses to overwrite a row with an older state. Rows Postgres rejects are
+ * dropped (and counted) so one bad row cannot hold back the rest of the history.
+ * Listing uses keyset pagination on (created_at, job_id), so the cost of a page does not
+ * grow with how deep the client has paged.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class JobHistoryService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final IngestionMetrics ingestionMetrics;
+
+    @Value("${job-history.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${job-history.batch-size:500}")
+    private int batchSize;
+
+    @Value("${job-history.max-pending:10000}")
+    private int maxPending;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO job_history (job_id, user_id, table_name, file_name, file_path, file_size, status, message, "
+                    + "stage_timings, rows_written, files_written, bytes_written, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (job_id) DO UPDATE SET "
+                    + "status = EXCLUDED.status, message = EXCLUDED.message, stage_timings = EXCLUDED.stage_timings, "
+                    + "rows_written = EXCLUDED.rows_written, files_written = EXCLUDED.files_written, "
+                    + "bytes_written = EXCLUDED.bytes_written, updated_at = EXCLUDED.updated_at "
+                    + "WHERE job_history.updated_at <= EXCLUDED.updated_at";
+
+    private static final int[] UPSERT_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    private static final String SELECT_COLUMNS =
+            "SELECT job_id, user_id, table_name, file_name, file_path, file_size, status, message, "
+                    + "stage_timings::text AS stage_timings, rows_written, files_written, bytes_written, created_at "
+                    + "FROM job_history";
+
+    private static final TypeReference<Map<String, Long>> TIMINGS_TYPE = new TypeReference<>() {};
+
+    // Latest pending state per jobId; a newer save replaces one that has not been flushed yet
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    private final RowMapper<UploadJob> jobRowMapper = (rs, rowNum) -> UploadJob.builder()
+            .jobId(rs.getString("job_id"))
+            .userId(rs.getString("user_id"))
+            .tableName(rs.getString("table_name"))
+            .fileName(rs.getString("file_name"))
+            .filePath(rs.getString("file_path"))
+            .fileSize(rs.getObject("file_size", Long.class))
+            .status(rs.getString("status"))
+            .message(rs.getString("message"))
+            .stageTimings(readTimings(rs.getString("stage_timings")))
+            .rowsWritten(rs.getObject("rows_written", Long.class))
+            .filesWritten(rs.getObject("files_written", Long.class))
+            .bytesWritten(rs.getObject("bytes_written", Long.class))
+            .timestamp(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-history-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        // drain whatever arrived after the last scheduled flush
+        flush();
+    }
+
+    /**
+     * Queue the current state of a job for writing. Never touches Postgres: if the pending
+     * buffer is full (Postgres down or too slow) the write is dropped and counted instead,
+     * since this runs on the upload and status-listener threads.
+     */
+    public void record(UploadJob job) {
+        try {
+            PendingWrite write = new PendingWrite(job.getJobId(), toArgs(job));
+
+            if (pending.size() >= maxPending && !pending.containsKey(job.getJobId())) {
+                log.warn("Job history buffer full ({} pending) - dropping status '{}' of job {}",
+                        pending.size(), job.getStatus(), job.getJobId());
+                ingestionMetrics.recordHistoryDropped();
+                return;
+            }
+
+            pending.put(job.getJobId(), write);
+
+        } catch (Exception e) {
+            log.error("Failed to record job history - JobId: {}", job.getJobId(), e);
+        }
+    }
+
+    /**
+     * Look up a single job; used when the Redis copy has expired.
+     */
+    public UploadJob findJob(String jobId) {
+        try {
+            List<UploadJob> rows = jdbcTemplate.query(SELECT_COLUMNS + " WHERE job_id = ?", jobRowMapper, jobId);
+            return rows.isEmpty() ? null : rows.get(0);
+        } catch (Exception e) {
+            log.error("Failed to read job history - JobId: {}", jobId, e);
+            return null;
+        }
+    }
+
+    /**
+     * List jobs newest first, optionally filtered by user, table and status.
+     *
+     * @param cursor opaque value from a previous page's nextCursor, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public JobPage listJobs(String userId, String tableName, String status, String cursor, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            args.add(userId);
+        }
+        if (tableName != null) {
+            sql.append(" AND table_name = ?");
+            args.add(tableName);
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status);
+        }
+        if (cursor != null) {
+            Object[] position = decodeCursor(cursor);
+            sql.append(" AND (created_at, job_id) < (?, ?)");
+            args.add(position[0]);
+            args.add(position[1]);
+        }
+
+        // fetch one extra row to know whether another page exists
+        sql.append(" ORDER BY created_at DESC, job_id DESC LIMIT ?");
+        args.add(limit + 1);
+
+        return toPage(jdbcTemplate.query(sql.toString(), jobRowMapper, args.toArray()), limit);
+    }
+
+    /**
+     * Cut rows fetched with LIMIT limit + 1 down to one page; the extra row only signals
+     * that a next page exists.
+     */
+    static JobPage toPage(List<UploadJob> rows, int limit) {
+        List<UploadJob> jobs = rows;
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            jobs = new ArrayList<>(rows.subList(0, limit));
+            UploadJob last = jobs.get(limit - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getJobId());
+        }
+
+        return JobPage.builder().jobs(jobs).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * Write everything pending in batches. Runs on the flusher thread. If Postgres cannot be
+     * reached, the batch is put back (unless a newer state for the same job arrived in the
+     * meantime) and the rest waits for the next flush.
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        for (String jobId : pending.keySet()) {
+            PendingWrite write = pending.remove(jobId);
+            if (write == null) {
+                continue;
+            }
+            batch.add(write);
+            if (batch.size() >= batchSize) {
+                if (!writeBatch(batch)) {
+                    return;
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * @return false if Postgres could not be reached and flushing should stop for now
+     */
+    private boolean writeBatch(List<PendingWrite> batch) {
+        try {
+            List<Object[]> args = new ArrayList<>(batch.size());
+            for (PendingWrite write : batch) {
+                args.add(write.args());
+            }
+            jdbcTemplate.batchUpdate(UPSERT_SQL, args, UPSERT_TYPES);
+            log.debug("Flushed {} job history rows", batch.size());
+            return true;
+        } catch (Exception e) {
+            if (isUnavailable(e)) {
+                log.error("Failed to flush {} job history rows - will retry", batch.size(), e);
+                requeue(batch);
+                return false;
+            }
+            log.warn("Job history batch of {} rows rejected - retrying rows one at a time: {}", batch.size(), e.getMessage());
+        }
+
+        // the batch failed on its data, so find and drop the offending rows instead of retrying them forever
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite write = batch.get(i);
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, List.<Object[]>of(write.args()), UPSERT_TYPES);
+            } catch (Exception e) {
+                if (isUnavailable(e)) {
+                    log.error("Failed to flush job history rows - will retry", e);
+                    requeue(batch.subList(i, batch.size()));
+                    return false;
+                }
+                log.error("Dropping job history row for job {}: {}", write.jobId(), e.getMessage());
+                ingestionMetrics.recordHistoryDropped();
+            }
+        }
+        return true;
+    }
+
+    private void requeue(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            pending.putIfAbsent(write.jobId(), write);
+        }
+    }
+
+    // Postgres down or the pool exhausted, as opposed to a row Postgres will never accept
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException;
+    }
+
+    private Object[] toArgs(UploadJob job) throws Exception {
+        // Whole seconds for every row: a job re-read from Redis has lost sub-second precision
+        // (UploadJob's JSON format), and keyset ordering needs one precision across all rows
+        LocalDateTime createdAt = (job.getTimestamp() != null ? job.getTimestamp() : LocalDateTime.now())
+                .truncatedTo(ChronoUnit.SECONDS);
+        String timings = job.getStageTimings() != null ? objectMapper.writeValueAsString(job.getStageTimings()) : null;
+
+        return new Object[] {
+                job.getJobId(),
+                job.getUserId() != null ? stripNul(job.getUserId()) : "anonymous",
+                job.getTableName() != null ? stripNul(job.getTableName()) : "",
+                stripNul(job.getFileName()),
+                stripNul(job.getFilePath()),
+                job.getFileSize(),
+                job.getStatus() != null ? stripNul(job.getStatus()) : "unknown",
+                stripNul(job.getMessage()),
+                timings,
+                job.getRowsWritten(),
+                job.getFilesWritten(),
+                job.getBytesWritten(),
+                Timestamp.valueOf(createdAt),
+                Timestamp.valueOf(LocalDateTime.now())
+        };
+    }
+
+    // Postgres text columns cannot hold NUL, and client-supplied names or error messages may contain it
+    private static String stripNul(String value) {
+        return value != null ? value.replace("\0", "") : null;
+    }
+
+    private Map<String, Long> readTimings(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, TIMINGS_TYPE);
+        } catch (Exception e) {
+            log.warn("Unreadable stage_timings in job history: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static String encodeCursor(LocalDateTime createdAt, String jobId) {
+        String raw = createdAt.toString() + "|" + jobId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            LocalDateTime createdAt = LocalDateTime.parse(raw.substring(0, sep));
+            return new Object[] { Timestamp.valueOf(createdAt), raw.substring(sep + 1) };
+        } catch (Exception e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+    }
+
+    private record PendingWrite(String jobId, Object[] args) {}
+}
@@ -0,0 +1,45 @@
+package com.datalake.api.service;
+
+import com.datalake.api.model.JobStatusUpdate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Consumes status reports published by the Spark worker and writes them onto the job record.
+ *
+ * The raw Message is taken rather than a String because the worker publishes
+ * application/json, which the default converter would hand over as byte[].
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JobStatusListener {
+
+    private final JobStatusService jobStatusService;
+    private final ObjectMapper objectMapper;
+
+    @RabbitListener(queues = "${rabbitmq.status-queue.name}")
+    public void onStatusUpdate(Message message) {
+        try {
+            String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+            JobStatusUpdate update = objectMapper.readValue(payload, JobStatusUpdate.class);
+
+            if (update.getJobId() == null) {
+                log.warn("Ignoring status update without jobId: {}", payload);
+                return;
+            }
+
+            jobStatusService.applyStatusUpdate(update);
+
+        } catch (Exception e) {
+            // Don't rethrow - a malformed report would otherwise be redelivered forever
+            log.error("Failed to handle job status update", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.datalake.api.service;
 
+import com.datalake.api.model.JobStatusUpdate;
 import com.datalake.api.model.UploadJob;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -16,16 +19,23 @@ public class JobStatusService {
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final JobHistoryService jobHistoryService;
 
     private static final String JOB_PREFIX = "job:";
     private static final long JOB_TTL_HOURS = 1;
 
+    // Striped locks so the read-merge-write of one job (concurrent worker reports) is not interleaved
+    private final Object[] jobLocks = createLocks(64);
+
     /**
-     * Save job status to Redis
+     * Save job status to Redis and queue it for the durable job history
      * Key format: job:{jobId}
-     * TTL: 1 hour
+     * TTL: 1 hour (Redis is only the hot copy; Postgres keeps the full history)
      */
     public void saveJobStatus(UploadJob job) {
+        // Asynchronous, batched write-through; never blocks on Postgres
+        jobHistoryService.record(job);
+
         try {
             String key = JOB_PREFIX + job.getJobId();
             String value = objectMapper.writeValueAsString(job);
@@ -44,7 +54,7 @@ public class JobStatusService {
     }
 
     /**
-     * Get job status from Redis
+     * Get job status from Redis, falling back to the job history once the Redis copy has expired
      */
     public UploadJob getJobStatus(String jobId) {
         try {
@@ -54,21 +64,36 @@ public class JobStatusService {
             
             String value = redisTemplate.opsForValue().get(key);
             
-            if (value == null) {
-                log.warn("Job not found in Redis: {}", jobId);
-                return null;
+            if (value != null) {
+                UploadJob job = objectMapper.readValue(value, UploadJob.class);
+                
+                log.info("Job status retrieved - JobId: {}, Status: {}", jobId, job.getStatus());
+                
+                return job;
             }
             
-            UploadJob job = objectMapper.readValue(value, UploadJob.class);
-            
-            log.info("Job status retrieved - JobId: {}, Status: {}", jobId, job.getStatus());
-            
-            return job;
+            log.debug("Job not found in Redis, checking job history: {}", jobId);
             
         } catch (Exception e) {
             log.error("Failed to get job status from Redis - JobId: {}", jobId, e);
+        }
+
+        UploadJob job = jobHistoryService.findJob(jobId);
+
+        if (job == null) {
+            log.warn("Job not found: {}", jobId);
             return null;
         }
+
+        // Re-warm the cache without re-recording history for an unchanged job
+        try {
+            redisTemplate.opsForValue().set(JOB_PREFIX + jobId, objectMapper.writeValueAsString(job),
+                    JOB_TTL_HOURS, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("Failed to re-cache job {} in Redis: {}", jobId, e.getMessage());
+        }
+
+        return job;
     }
 
     /**
@@ -102,6 +127,73 @@ public class JobStatusService {
         }
     }
 
+    /**
+     * Apply a status report published by the worker.
+     * Worker stage timings are merged into the ones already recorded by the API,
+     * and row/file/byte counters are only overwritten when the report carries them.
+     */
+    public void applyStatusUpdate(JobStatusUpdate update) {
+        synchronized (lockFor(update.getJobId())) {
+            applyStatusUpdateLocked(update);
+        }
+    }
+
+    private void applyStatusUpdateLocked(JobStatusUpdate update) {
+        try {
+            log.info("Applying worker status update - JobId: {}, Status: {}",
+                     update.getJobId(), update.getStatus());
+
+            UploadJob job = getJobStatus(update.getJobId());
+
+            if (job == null) {
+                log.warn("Cannot apply status update - job not found: {}", update.getJobId());
+                return;
+            }
+
+            job.setStatus(update.getStatus());
+            job.setMessage(update.getMessage());
+
+            mergeTimings(job, update.getStageTimings());
+            if (update.getRowsWritten() != null) {
+                job.setRowsWritten(update.getRowsWritten());
+            }
+            if (update.getFilesWritten() != null) {
+                job.setFilesWritten(update.getFilesWritten());
+            }
+            if (update.getBytesWritten() != null) {
+                job.setBytesWritten(update.getBytesWritten());
+            }
+
+            saveJobStatus(job);
+
+        } catch (Exception e) {
+            log.error("Failed to apply status update - JobId: {}", update.getJobId(), e);
+        }
+    }
+
+    private static void mergeTimings(UploadJob job, Map<String, Long> stageTimings) {
+        if (stageTimings == null || stageTimings.isEmpty()) {
+            return;
+        }
+        Map<String, Long> timings = job.getStageTimings() != null
+                ? new HashMap<>(job.getStageTimings())
+                : new HashMap<>();
+        timings.putAll(stageTimings);
+        job.setStageTimings(timings);
+    }
+
+    private Object lockFor(String jobId) {
+        return jobLocks[Math.floorMod(jobId != null ? jobId.hashCode() : 0, jobLocks.length)];
+    }
+
+    private static Object[] createLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
     /**
      * Delete job status from Redis
      */
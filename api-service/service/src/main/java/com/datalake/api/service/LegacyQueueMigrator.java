@@ -0,0 +1,78 @@
+package com.datalake.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves jobs left in the unsharded processing queue (rabbitmq.queue.name, used before
+ * jobs were sharded by table) to the shard queue their table now routes to.
+ *
+ * Workers no longer consume that queue, so without this its jobs would stay "queued"
+ * forever. Runs once at startup, before the web server accepts uploads, so every moved
+ * job is ahead of any new job for the same table on its shard. The queue itself is left
+ * in place (empty) in case an API instance that is not upgraded yet still publishes to it.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LegacyQueueMigrator implements SmartInitializingSingleton {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final RabbitAdmin rabbitAdmin;
+    private final ObjectMapper objectMapper;
+    private final QueueShardRouter shardRouter;
+
+    @Value("${rabbitmq.queue.name}")
+    private String queueName;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            // null when the queue does not exist, i.e. a fresh install
+            if (rabbitAdmin.getQueueProperties(queueName) == null) {
+                return;
+            }
+
+            Integer moved = rabbitTemplate.execute(this::moveAll);
+            if (moved != null && moved > 0) {
+                log.info("Moved {} jobs from unsharded queue {} to shard queues", moved, queueName);
+            }
+
+        } catch (Exception e) {
+            // uploads still work; the remaining jobs are moved on the next start
+            log.error("Failed to move jobs from unsharded queue {} to shard queues", queueName, e);
+        }
+    }
+
+    private int moveAll(Channel channel) throws Exception {
+        int moved = 0;
+        GetResponse response;
+        while ((response = channel.basicGet(queueName, false)) != null) {
+            String shardQueue = shardRouter.queueFor(tableNameOf(response.getBody()));
+            // same channel, so the broker handles the publish before the ack; properties
+            // (including x-enqueued-at) are kept as published
+            channel.basicPublish("", shardQueue, response.getProps(), response.getBody());
+            channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            moved++;
+        }
+        return moved;
+    }
+
+    private String tableNameOf(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("tableName").asText(null);
+        } catch (Exception e) {
+            // unreadable for us is unreadable for the worker too; it will fail there and be reported
+            log.warn("Unreadable job in {} - routing it to the default table's shard: {}", queueName, e.getMessage());
+            return null;
+        }
+    }
+}
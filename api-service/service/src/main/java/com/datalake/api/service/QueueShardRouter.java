@@ -0,0 +1,88 @@
+package com.datalake.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a target table to one of the shard queues ({queueName}.0 .. {queueName}.{shards-1}).
+ *
+ * All jobs for one table land on the same shard, and each shard has a single active
+ * consumer, so writes to one Iceberg table are serialized without locks while different
+ * tables proceed in parallel.
+ *
+ * Changing the shard count is not safe while jobs are queued: a table that moves could
+ * have jobs on its old and new shard at once, consumed by two workers concurrently. Drain
+ * all shard queues before changing it (jump consistent hashing only keeps the number of
+ * tables that move small). The workers' RABBITMQ_QUEUE_SHARDS must be set to the same count.
+ */
+@Component
+public class QueueShardRouter {
+
+    // Same fallback the worker uses for jobs without a table name
+    private static final String DEFAULT_TABLE = "default_table";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String queueName;
+    private final int shards;
+
+    public QueueShardRouter(@Value("${rabbitmq.queue.name}") String queueName,
+                            @Value("${rabbitmq.queue.shards:8}") int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("rabbitmq.queue.shards must be at least 1");
+        }
+        this.queueName = queueName;
+        this.shards = shards;
+    }
+
+    /**
+     * Shard queue that jobs for the given table are published to.
+     */
+    public String queueFor(String tableName) {
+        String table = tableName != null && !tableName.isBlank() ? tableName : DEFAULT_TABLE;
+        return shardQueueName(jumpHash(fnv1a(table), shards));
+    }
+
+    /**
+     * Names of all shard queues, in shard order.
+     */
+    public List<String> shardQueueNames() {
+        List<String> names = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            names.add(shardQueueName(i));
+        }
+        return names;
+    }
+
+    private String shardQueueName(int shard) {
+        return queueName + "." + shard;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Jump consistent hash (Lamping and Veach, 2014).
+     */
+    private static int jumpHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+}
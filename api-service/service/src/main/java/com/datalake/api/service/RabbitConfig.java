@@ -1,6 +1,9 @@
 package com.datalake.api.service;
 
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,15 +11,30 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * RabbitMQ configuration: declares the file processing queue as a Spring bean.
+ * RabbitMQ configuration: declares the file processing shard queues and the job status queue as Spring beans.
  */
 @Configuration
 public class RabbitConfig {
 
     @Bean
-    public Queue fileProcessingQueue(@Value("${rabbitmq.queue.name}") String queueName) {
-        // durable queue
+    public Declarables fileProcessingShardQueues(QueueShardRouter shardRouter) {
+        // durable queues; single-active-consumer keeps each shard (and so each table) serialized
+        // even if two workers briefly both claim it while shards are being rebalanced.
+        // The worker declares the same arguments, so they must be kept in sync.
+        List<Declarable> queues = new ArrayList<>();
+        for (String queueName : shardRouter.shardQueueNames()) {
+            queues.add(QueueBuilder.durable(queueName).singleActiveConsumer().build());
+        }
+        return new Declarables(queues);
+    }
+
+    @Bean
+    public Queue jobStatusQueue(@Value("${rabbitmq.status-queue.name}") String queueName) {
+        // durable queue the worker reports job progress and stage timings on
         return new Queue(queueName, true);
     }
 
@@ -9,7 +9,9 @@ import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -17,7 +19,8 @@ import java.util.Properties;
  * Service responsible for sending jobs to RabbitMQ and querying basic queue stats.
  *
  * Notes:
- * - Queue bean declaration is provided in a separate configuration class (RabbitConfig).
+ * - Queue bean declarations are provided in a separate configuration class (RabbitConfig).
+ * - Jobs are routed to a shard queue by table name (QueueShardRouter); stats are summed over all shards.
  * - RabbitAdmin.getQueueProperties(...) returns a Map; we defensively handle numeric types.
  */
 @Service
@@ -28,23 +31,34 @@ public class RabbitMQService {
     private final AmqpTemplate rabbitTemplate;
     private final RabbitAdmin rabbitAdmin;
     private final ObjectMapper objectMapper;
+    private final IngestionMetrics ingestionMetrics;
+    private final QueueShardRouter shardRouter;
+
+    // Epoch millis at publish time; read by the worker to compute queue wait
+    public static final String ENQUEUED_AT_HEADER = "x-enqueued-at";
 
     @Value("${rabbitmq.queue.name}")
     private String queueName;
 
     /**
-     * Send job to RabbitMQ queue as a JSON payload.
-     * Converts the given UploadJob to JSON and publishes it to the configured queue.
+     * Send job to RabbitMQ as a JSON payload.
+     * Converts the given UploadJob to JSON and publishes it to the shard queue owning its table.
      */
     public void sendJob(UploadJob job) {
         try {
             // Convert job to JSON
             String message = objectMapper.writeValueAsString(job);
+            String shardQueue = shardRouter.queueFor(job.getTableName());
 
-            log.info("Sending job to RabbitMQ - JobId: {}, Queue: {}", job.getJobId(), queueName);
+            log.info("Sending job to RabbitMQ - JobId: {}, Queue: {}", job.getJobId(), shardQueue);
 
-            // Send message to queue
-            rabbitTemplate.convertAndSend(queueName, message);
+            // Send message to queue, stamping the enqueue time so the worker can measure queue wait
+            long start = System.nanoTime();
+            rabbitTemplate.convertAndSend(shardQueue, message, m -> {
+                m.getMessageProperties().setHeader(ENQUEUED_AT_HEADER, System.currentTimeMillis());
+                return m;
+            });
+            ingestionMetrics.recordPublish(System.nanoTime() - start);
 
             log.info("Job successfully sent to RabbitMQ: {}", job.getJobId());
 
@@ -55,58 +69,76 @@ public class RabbitMQService {
     }
 
     /**
-     * Get queue statistics (message count, consumer count).
-     * Returns a map with keys: queueName, messageCount, consumerCount, status, and optional error.
+     * Get queue statistics (message count, consumer count) summed over all shard queues.
+     * Returns a map with keys: queueName, messageCount, consumerCount, shards, maxUnconsumedShardDepth,
+     * status, and optional error.
+     * "shards" lists the per-queue counts; a shard without consumers is not being processed, and
+     * maxUnconsumedShardDepth is the most messages waiting on such a shard (0 if every shard is consumed).
      */
     public Map<String, Object> getQueueStats() {
         Map<String, Object> stats = new HashMap<>();
+        stats.put("queueName", queueName);
 
         try {
-            log.debug("Retrieving queue stats for: {}", queueName);
-
-            // Get queue properties from RabbitMQ (returns java.util.Properties)
-            Properties queueProperties = rabbitAdmin.getQueueProperties(queueName);
-
-            if (queueProperties != null) {
-                // Values might come back as Number or String; handle both
-                Object messageCountObj = queueProperties.get("QUEUE_MESSAGE_COUNT");
-                Object consumerCountObj = queueProperties.get("QUEUE_CONSUMER_COUNT");
-
-                int messageCount = 0;
-                int consumerCount = 0;
-
-                if (messageCountObj instanceof Number) {
-                    messageCount = ((Number) messageCountObj).intValue();
-                } else if (messageCountObj != null) {
-                    try { messageCount = Integer.parseInt(messageCountObj.toString()); } catch (NumberFormatException ignored) {}
+            log.debug("Retrieving queue stats for shards of: {}", queueName);
+
+            int messageCount = 0;
+            int consumerCount = 0;
+            int maxUnconsumedShardDepth = 0;
+            List<Map<String, Object>> shards = new ArrayList<>();
+
+            for (String shardQueue : shardRouter.shardQueueNames()) {
+                // Get queue properties from RabbitMQ (returns java.util.Properties)
+                Properties queueProperties = rabbitAdmin.getQueueProperties(shardQueue);
+
+                if (queueProperties == null) {
+                    log.warn("Queue properties are null for: {}", shardQueue);
+                    stats.put("status", "unavailable");
+                    stats.put("error", "Queue not found or not accessible: " + shardQueue);
+                    return stats;
                 }
 
-                if (consumerCountObj instanceof Number) {
-                    consumerCount = ((Number) consumerCountObj).intValue();
-                } else if (consumerCountObj != null) {
-                    try { consumerCount = Integer.parseInt(consumerCountObj.toString()); } catch (NumberFormatException ignored) {}
+                int shardMessages = toInt(queueProperties.get("QUEUE_MESSAGE_COUNT"));
+                int shardConsumers = toInt(queueProperties.get("QUEUE_CONSUMER_COUNT"));
+                messageCount += shardMessages;
+                consumerCount += shardConsumers;
+                if (shardConsumers == 0) {
+                    // e.g. workers configured with fewer shards than the API: nobody will ever take these
+                    maxUnconsumedShardDepth = Math.max(maxUnconsumedShardDepth, shardMessages);
                 }
 
-                stats.put("queueName", queueName);
-                stats.put("messageCount", messageCount);
-                stats.put("consumerCount", consumerCount);
-                stats.put("status", "available");
-
-                log.info("Queue stats - Messages: {}, Consumers: {}", messageCount, consumerCount);
-            } else {
-                log.warn("Queue properties are null for: {}", queueName);
-                stats.put("queueName", queueName);
-                stats.put("status", "unavailable");
-                stats.put("error", "Queue not found or not accessible");
+                Map<String, Object> shard = new HashMap<>();
+                shard.put("queueName", shardQueue);
+                shard.put("messageCount", shardMessages);
+                shard.put("consumerCount", shardConsumers);
+                shards.add(shard);
             }
 
+            stats.put("messageCount", messageCount);
+            stats.put("consumerCount", consumerCount);
+            stats.put("shards", shards);
+            stats.put("maxUnconsumedShardDepth", maxUnconsumedShardDepth);
+            stats.put("status", "available");
+
+            log.info("Queue stats - Messages: {}, Consumers: {}, Shards: {}", messageCount, consumerCount, shards.size());
+
         } catch (Exception e) {
             log.error("Error retrieving queue stats", e);
-            stats.put("queueName", queueName);
             stats.put("status", "error");
             stats.put("error", e.getMessage());
         }
 
         return stats;
     }
-}
\ No newline at end of file
+
+    // Values might come back as Number or String; handle both
+    private static int toInt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value != null) {
+            try { return Integer.parseInt(value.toString()); } catch (NumberFormatException ignored) {}
+        }
+        return 0;
+    }
+}
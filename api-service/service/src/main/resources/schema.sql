@@ -0,0 +1,23 @@
+-- Durable job history; Redis only keeps a short-lived copy of each job.
+CREATE TABLE IF NOT EXISTS job_history (
+    job_id        VARCHAR(64)  PRIMARY KEY,
+    user_id       VARCHAR(255) NOT NULL,
+    table_name    VARCHAR(255) NOT NULL,
+    file_name     TEXT,
+    file_path     TEXT,
+    file_size     BIGINT,
+    status        VARCHAR(32)  NOT NULL,
+    message       TEXT,
+    stage_timings JSONB,
+    rows_written  BIGINT,
+    files_written BIGINT,
+    bytes_written BIGINT,
+    created_at    TIMESTAMP    NOT NULL,
+    updated_at    TIMESTAMP    NOT NULL
+);
+
+-- Listing indexes match the keyset order (created_at DESC, job_id DESC)
+CREATE INDEX IF NOT EXISTS idx_job_history_user ON job_history (user_id, created_at DESC, job_id DESC);
+CREATE INDEX IF NOT EXISTS idx_job_history_table ON job_history (table_name, created_at DESC, job_id DESC);
+CREATE INDEX IF NOT EXISTS idx_job_history_status ON job_history (status, created_at DESC, job_id DESC);
+CREATE INDEX IF NOT EXISTS idx_job_history_created ON job_history (created_at DESC, job_id DESC);
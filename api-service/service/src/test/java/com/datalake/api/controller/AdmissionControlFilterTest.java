@@ -0,0 +1,97 @@
+package com.datalake.api.controller;
+
+import com.datalake.api.service.AdmissionControlService;
+import com.datalake.api.service.AdmissionControlService.Admission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlFilterTest {
+
+    private AdmissionControlService admissionControlService;
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        admissionControlService = mock(AdmissionControlService.class);
+        filter = new AdmissionControlFilter(admissionControlService, new ObjectMapper());
+    }
+
+    @Test
+    void onlyUploadPostsAreFiltered() {
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/api/v1/upload")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/v1/upload")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/api/v1/upload/extra")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/v1/jobs")));
+
+        MockHttpServletRequest withContextPath = new MockHttpServletRequest("POST", "/app/api/v1/upload");
+        withContextPath.setContextPath("/app");
+        assertFalse(filter.shouldNotFilter(withContextPath));
+    }
+
+    @Test
+    void userComesFromHeaderThenQueryParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/upload");
+        request.addHeader("X-User-Id", "alice");
+        request.setQueryString("userId=bob");
+        assertEquals("alice", filter.resolveUser(request));
+
+        request = new MockHttpServletRequest("POST", "/api/v1/upload");
+        request.addHeader("X-User-Id", " ");
+        request.setQueryString("tableName=t&userId=bob%20smith");
+        assertEquals("bob smith", filter.resolveUser(request));
+
+        request = new MockHttpServletRequest("POST", "/api/v1/upload");
+        request.setQueryString("userId=");
+        assertNull(filter.resolveUser(request));
+
+        assertNull(filter.resolveUser(new MockHttpServletRequest("POST", "/api/v1/upload")));
+    }
+
+    @Test
+    void rejectionSetsRetryAfterAndStopsTheChain() throws Exception {
+        when(admissionControlService.tryAdmit(any(), any(), anyLong()))
+                .thenReturn(new Admission(false, HttpStatus.TOO_MANY_REQUESTS, "user_rate", 7, 0));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/upload");
+        request.setRemoteAddr("10.1.2.3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("7", response.getHeader("Retry-After"));
+        assertNull(chain.getRequest());
+        // unidentified callers are rate limited by address
+        verify(admissionControlService).tryAdmit(isNull(), eq("10.1.2.3"), anyLong());
+    }
+
+    @Test
+    void admittedUploadIsReleasedAfterTheChain() throws Exception {
+        Admission admitted = new Admission(true, HttpStatus.ACCEPTED, null, 0, 100);
+        when(admissionControlService.tryAdmit(any(), any(), anyLong())).thenReturn(admitted);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/upload"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        verify(admissionControlService).release(admitted);
+    }
+}
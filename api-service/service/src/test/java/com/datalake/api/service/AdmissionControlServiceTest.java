@@ -0,0 +1,162 @@
+package com.datalake.api.service;
+
+import com.datalake.api.service.AdmissionControlService.Admission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlServiceTest {
+
+    private final long[] now = {0};
+    private RabbitMQService rabbitMQService;
+    private SimpleMeterRegistry registry;
+    private AdmissionControlService service;
+
+    @BeforeEach
+    void setUp() {
+        rabbitMQService = mock(RabbitMQService.class);
+        when(rabbitMQService.getQueueStats())
+                .thenReturn(Map.of("status", "available", "messageCount", 0, "consumerCount", 1));
+
+        registry = new SimpleMeterRegistry();
+        service = new AdmissionControlService(rabbitMQService, new IngestionMetrics(registry));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxInFlightBytes", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(service, "unknownLengthBytes", DataSize.ofMegabytes(100));
+        ReflectionTestUtils.setField(service, "maxQueueDepth", 1000L);
+        ReflectionTestUtils.setField(service, "maxQueueDepthWithoutConsumers", 1L);
+        ReflectionTestUtils.setField(service, "queueStatsRefreshMs", 2000L);
+        ReflectionTestUtils.setField(service, "overloadRetryAfterSeconds", 30L);
+        ReflectionTestUtils.setField(service, "userUploadsPerMinute", 60.0);
+        ReflectionTestUtils.setField(service, "userBurst", 3.0);
+        ReflectionTestUtils.setField(service, "maxTrackedUsers", 10000);
+        service.nanoClock = () -> now[0];
+        service.init();
+    }
+
+    private void advance(long millis) {
+        now[0] += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private double inFlightBytes() {
+        return registry.get("datalake.api.upload.inflight").gauge().value();
+    }
+
+    @Test
+    void burstIsAdmittedThenRefilledOverTime() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.tryAdmit("alice", "10.0.0.1", 0).admitted());
+        }
+
+        Admission rejected = service.tryAdmit("alice", "10.0.0.1", 0);
+        assertFalse(rejected.admitted());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.status());
+        assertEquals("user_rate", rejected.reason());
+        // other users have their own bucket
+        assertTrue(service.tryAdmit("bob", "10.0.0.1", 0).admitted());
+
+        // 60 per minute: one token per second (a little extra so float rounding cannot leave it at 0.999...)
+        advance(1100);
+        assertTrue(service.tryAdmit("alice", "10.0.0.1", 0).admitted());
+        assertFalse(service.tryAdmit("alice", "10.0.0.1", 0).admitted());
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        ReflectionTestUtils.setField(service, "userUploadsPerMinute", 6.0);
+        ReflectionTestUtils.setField(service, "userBurst", 1.0);
+
+        assertTrue(service.tryAdmit("alice", null, 0).admitted());
+        assertEquals(10, service.tryAdmit("alice", null, 0).retryAfterSeconds());
+
+        advance(2500);
+        assertEquals(8, service.tryAdmit("alice", null, 0).retryAfterSeconds());
+
+        advance(7400);
+        assertEquals(1, service.tryAdmit("alice", null, 0).retryAfterSeconds());
+    }
+
+    @Test
+    void unidentifiedCallersAreLimitedByAddress() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.tryAdmit(null, "10.0.0.1", 0).admitted());
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, service.tryAdmit(null, "10.0.0.1", 0).status());
+        assertTrue(service.tryAdmit(null, "10.0.0.2", 0).admitted());
+        // a user id that looks like an address does not share its bucket
+        assertTrue(service.tryAdmit("10.0.0.1", "10.0.0.1", 0).admitted());
+    }
+
+    @Test
+    void bytesAreRefundedWhenRateLimited() {
+        ReflectionTestUtils.setField(service, "userBurst", 1.0);
+
+        Admission first = service.tryAdmit("alice", null, 100);
+        assertTrue(first.admitted());
+        assertEquals(100.0, inFlightBytes());
+
+        assertFalse(service.tryAdmit("alice", null, 100).admitted());
+        assertEquals(100.0, inFlightBytes());
+
+        service.release(first);
+        assertEquals(0.0, inFlightBytes());
+    }
+
+    @Test
+    void overloadDoesNotCostRateBudget() {
+        ReflectionTestUtils.setField(service, "userBurst", 1.0);
+
+        Admission big = service.tryAdmit("bob", null, 1024);
+        Admission overloaded = service.tryAdmit("alice", null, 1);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, overloaded.status());
+        assertEquals("in_flight_bytes", overloaded.reason());
+
+        service.release(big);
+        assertTrue(service.tryAdmit("alice", null, 1).admitted());
+    }
+
+    @Test
+    void idleServiceAdmitsOneOversizedUpload() {
+        Admission oversized = service.tryAdmit("alice", null, DataSize.ofKilobytes(10).toBytes());
+        assertTrue(oversized.admitted());
+
+        assertEquals("in_flight_bytes", service.tryAdmit("bob", null, 1).reason());
+
+        service.release(oversized);
+        assertTrue(service.tryAdmit("bob", null, 1).admitted());
+    }
+
+    @Test
+    void shardWithoutConsumersRejectsUploads() {
+        // e.g. workers configured with fewer shards than the API
+        when(rabbitMQService.getQueueStats()).thenReturn(Map.of("status", "available",
+                "messageCount", 5, "consumerCount", 3, "maxUnconsumedShardDepth", 2));
+
+        Admission rejected = service.tryAdmit("alice", null, 0);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.status());
+        assertEquals("no_consumers", rejected.reason());
+        assertEquals(30, rejected.retryAfterSeconds());
+    }
+
+    @Test
+    void emptyShardsWithoutConsumersAreAdmitted() {
+        when(rabbitMQService.getQueueStats()).thenReturn(Map.of("status", "available",
+                "messageCount", 0, "consumerCount", 0, "maxUnconsumedShardDepth", 0));
+
+        assertTrue(service.tryAdmit("alice", null, 0).admitted());
+    }
+}
@@ -0,0 +1,168 @@
+package com.datalake.api.service;
+
+import com.datalake.api.controller.JobController;
+import com.datalake.api.model.JobPage;
+import com.datalake.api.model.UploadJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JobHistoryServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+    private JobHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        registry = new SimpleMeterRegistry();
+        service = new JobHistoryService(jdbcTemplate, new ObjectMapper(), new IngestionMetrics(registry));
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "maxPending", 10000);
+    }
+
+    private static UploadJob job(String jobId, LocalDateTime createdAt) {
+        return UploadJob.builder().jobId(jobId).userId("alice").tableName("employees")
+                .status("queued").timestamp(createdAt).build();
+    }
+
+    private double dropped() {
+        return registry.get("datalake.api.job_history.dropped").counter().count();
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 10, 23, 9, 38, 23);
+
+        Object[] position = JobHistoryService.decodeCursor(JobHistoryService.encodeCursor(createdAt, "job|1"));
+
+        assertEquals(Timestamp.valueOf(createdAt), position[0]);
+        assertEquals("job|1", position[1]);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("2025-10-23T09:38:23".getBytes(StandardCharsets.UTF_8));
+        String badDate = Base64.getUrlEncoder().encodeToString("yesterday|job-1".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> JobHistoryService.decodeCursor("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> JobHistoryService.decodeCursor(noSeparator));
+        assertThrows(IllegalArgumentException.class, () -> JobHistoryService.decodeCursor(badDate));
+    }
+
+    @Test
+    void malformedCursorReturnsBadRequest() {
+        JobController controller = new JobController(mock(JobStatusService.class), service, mock(RabbitMQService.class));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listJobs(null, null, null, "garbage", 50).getStatusCode());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void extraRowBecomesNextCursor() {
+        LocalDateTime now = LocalDateTime.of(2025, 10, 23, 9, 38, 23);
+        List<UploadJob> rows = List.of(job("c", now), job("b", now.minusSeconds(1)), job("a", now.minusSeconds(2)));
+
+        JobPage page = JobHistoryService.toPage(rows, 2);
+
+        assertEquals(List.of(rows.get(0), rows.get(1)), page.getJobs());
+        Object[] position = JobHistoryService.decodeCursor(page.getNextCursor());
+        assertEquals(Timestamp.valueOf(now.minusSeconds(1)), position[0]);
+        assertEquals("b", position[1]);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UploadJob> rows = List.of(job("b", now), job("a", now));
+
+        JobPage page = JobHistoryService.toPage(rows, 2);
+
+        assertEquals(rows, page.getJobs());
+        assertNull(page.getNextCursor());
+        assertNull(JobHistoryService.toPage(List.of(), 2).getNextCursor());
+    }
+
+    @Test
+    void rejectedRowIsDroppedAndTheRestWritten() {
+        List<String> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenAnswer(invocation -> {
+            List<Object[]> args = invocation.getArgument(1);
+            for (Object[] row : args) {
+                if ("bad".equals(row[0])) {
+                    throw new DataIntegrityViolationException("value too long for type character varying(255)");
+                }
+            }
+            args.forEach(row -> written.add((String) row[0]));
+            return new int[args.size()];
+        });
+
+        service.record(job("good-1", null));
+        service.record(job("bad", null));
+        service.record(job("good-2", null));
+        service.flush();
+
+        assertEquals(2, written.size());
+        assertEquals(1.0, dropped());
+
+        // the bad row is not retried on the next flush
+        reset(jdbcTemplate);
+        service.flush();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void unreachablePostgresKeepsRowsForTheNextFlush() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenThrow(new CannotGetJdbcConnectionException("connection refused"))
+                .thenReturn(new int[2]);
+
+        service.record(job("job-1", null));
+        service.record(job("job-2", null));
+        service.flush();
+        service.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+        assertEquals(0.0, dropped());
+    }
+
+    @Test
+    void fullBufferDropsWithoutTouchingPostgres() {
+        ReflectionTestUtils.setField(service, "maxPending", 1);
+
+        service.record(job("job-1", null));
+        service.record(job("job-2", null));
+        // a newer state of a job already pending still replaces it
+        service.record(job("job-1", null));
+
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(1.0, dropped());
+    }
+}
@@ -0,0 +1,73 @@
+package com.datalake.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueueShardRouterTest {
+
+    private static final String QUEUE = "file.processing.queue";
+    private static final int TABLES = 1000;
+
+    @Test
+    void sameTableAlwaysMapsToSameQueue() {
+        QueueShardRouter first = new QueueShardRouter(QUEUE, 8);
+        QueueShardRouter second = new QueueShardRouter(QUEUE, 8);
+
+        for (int i = 0; i < TABLES; i++) {
+            String table = "table_" + i;
+            assertEquals(first.queueFor(table), first.queueFor(table));
+            assertEquals(first.queueFor(table), second.queueFor(table));
+        }
+    }
+
+    @Test
+    void missingTableNameUsesDefaultTableShard() {
+        QueueShardRouter router = new QueueShardRouter(QUEUE, 8);
+
+        assertEquals(router.queueFor("default_table"), router.queueFor(null));
+        assertEquals(router.queueFor("default_table"), router.queueFor("  "));
+    }
+
+    @Test
+    void tablesSpreadOverAllShardQueues() {
+        QueueShardRouter router = new QueueShardRouter(QUEUE, 8);
+        List<String> names = router.shardQueueNames();
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < TABLES; i++) {
+            String queue = router.queueFor("table_" + i);
+            assertTrue(names.contains(queue), queue);
+            counts.merge(queue, 1, Integer::sum);
+        }
+
+        // 125 per shard on average
+        for (String name : names) {
+            int count = counts.getOrDefault(name, 0);
+            assertTrue(count >= 75 && count <= 175, name + " got " + count);
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesTablesToTheNewShard() {
+        QueueShardRouter before = new QueueShardRouter(QUEUE, 8);
+        QueueShardRouter after = new QueueShardRouter(QUEUE, 9);
+        int moved = 0;
+
+        for (int i = 0; i < TABLES; i++) {
+            String table = "table_" + i;
+            if (!before.queueFor(table).equals(after.queueFor(table))) {
+                assertEquals(QUEUE + ".8", after.queueFor(table));
+                moved++;
+            }
+        }
+
+        // about 1/9 of the tables should move
+        assertTrue(moved > 0 && moved <= 170, "moved " + moved);
+    }
+}
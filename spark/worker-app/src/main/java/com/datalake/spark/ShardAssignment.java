@@ -0,0 +1,71 @@
+package com.datalake.spark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic shard-to-worker assignment shared by all workers.
+ *
+ * Bounded-load rendezvous hashing: shards are taken in order, and each goes to the
+ * highest-scoring member that is still below its capacity of ceil(shards / members).
+ * The result depends only on the shard list and the member set (not on iteration order),
+ * so every worker that sees the same members computes the same assignment.
+ */
+final class ShardAssignment {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ShardAssignment() {
+    }
+
+    /**
+     * @return shard queue -> owning member, for every shard in {@code shardQueues}
+     */
+    static Map<String, String> assign(List<String> shardQueues, Collection<String> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("at least one member is required");
+        }
+        int capacity = (shardQueues.size() + members.size() - 1) / members.size();
+        Map<String, Integer> load = new HashMap<>();
+        Map<String, String> assignment = new HashMap<>();
+
+        for (String shardQueue : shardQueues) {
+            String best = null;
+            long bestScore = Long.MIN_VALUE;
+            for (String member : members) {
+                if (load.getOrDefault(member, 0) >= capacity) {
+                    continue;
+                }
+                long score = mix(fnv1a(member + "#" + shardQueue));
+                // ties broken by name so the result never depends on iteration order
+                if (best == null || score > bestScore || (score == bestScore && member.compareTo(best) < 0)) {
+                    best = member;
+                    bestScore = score;
+                }
+            }
+            assignment.put(shardQueue, best);
+            load.merge(best, 1, Integer::sum);
+        }
+        return assignment;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // splitmix64 finalizer; FNV alone clusters for keys that differ only in a trailing digit
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
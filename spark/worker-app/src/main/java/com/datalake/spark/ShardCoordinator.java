@@ -0,0 +1,283 @@
+package com.datalake.spark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Delivery;
+
+/**
+ * Decides which shard queues this worker consumes and moves shards between workers as
+ * they join or leave.
+ *
+ * Workers announce themselves with heartbeats on a fanout exchange. Every worker keeps
+ * the set of peers heard from recently and computes the same assignment from it
+ * (see {@link ShardAssignment}), so no central coordinator is needed.
+ *
+ * Each claimed shard has its own channel with prefetch 1, so at most one job per shard
+ * is ever delivered to this worker. Releasing a shard closes its channel, which makes the
+ * broker requeue that unacked delivery, in order, for the shard's next owner. A copy of
+ * it already handed to this worker is then dropped instead of processed. Shard queues
+ * are also single-active-consumer, so if two workers briefly disagree about membership
+ * the broker still delivers each shard to only one of them.
+ *
+ * Jobs run one at a time on a single processing thread. Claims and releases take the same
+ * lock, so they only happen between jobs. The lock is fair, so a pending rebalance goes
+ * ahead of the next job instead of waiting out a backlog.
+ */
+public class ShardCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private static final String TYPE_HEARTBEAT = "heartbeat";
+    private static final String TYPE_LEAVE = "leave";
+
+    /**
+     * Processes one job. Must ack or nack on the channel it is given.
+     */
+    @FunctionalInterface
+    public interface JobHandler {
+        void handle(Channel channel, Delivery delivery) throws IOException;
+    }
+
+    private record ShardDelivery(String shardQueue, Channel channel, Delivery delivery) {}
+
+    private final String workerId;
+    private final Connection conn;
+    private final Channel membershipChannel;
+    private final String membershipExchange;
+    private final List<String> shardQueues;
+    private final JobHandler jobHandler;
+    private final long heartbeatMs;
+    private final long memberTimeoutMs;
+
+    // peer workerId -> last heartbeat (epoch millis)
+    private final Map<String, Long> peers = new ConcurrentHashMap<>();
+    // shard queue -> the channel consuming it, for shards this worker currently owns
+    private final Map<String, Channel> claimed = new ConcurrentHashMap<>();
+    // channels whose consumer the broker cancelled; closed on the next rebalance
+    private final Queue<Channel> abandoned = new ConcurrentLinkedQueue<>();
+    // handed over by the client's dispatch threads so they never block on a running job
+    private final BlockingQueue<ShardDelivery> deliveries = new LinkedBlockingQueue<>();
+    // held while a job runs and while shards are claimed or released
+    private final ReentrantLock processingLock = new ReentrantLock(true);
+
+    private ScheduledExecutorService scheduler;
+    private Thread processor;
+
+    public ShardCoordinator(String workerId, Connection conn, String membershipExchange,
+                            List<String> shardQueues, JobHandler jobHandler,
+                            long heartbeatMs, long memberTimeoutMs) throws IOException {
+        this.workerId = workerId;
+        this.conn = conn;
+        this.membershipChannel = conn.createChannel();
+        this.membershipExchange = membershipExchange;
+        this.shardQueues = shardQueues;
+        this.jobHandler = jobHandler;
+        this.heartbeatMs = heartbeatMs;
+        this.memberTimeoutMs = memberTimeoutMs;
+    }
+
+    /**
+     * Join the membership exchange and start processing, heartbeating and rebalancing.
+     */
+    public void start() throws IOException {
+        membershipChannel.exchangeDeclare(membershipExchange, BuiltinExchangeType.FANOUT, true);
+        // exclusive, auto-delete queue: goes away with this worker's connection
+        String inbox = membershipChannel.queueDeclare().getQueue();
+        membershipChannel.queueBind(inbox, membershipExchange, "");
+        membershipChannel.basicConsume(inbox, true, (tag, delivery) -> {
+            String member = new String(delivery.getBody(), StandardCharsets.UTF_8);
+            if (member.equals(workerId)) {
+                return;
+            }
+            if (TYPE_LEAVE.equals(delivery.getProperties().getType())) {
+                log.info("Worker {} left", member);
+                peers.remove(member);
+            } else if (peers.put(member, System.currentTimeMillis()) == null) {
+                log.info("Worker {} joined", member);
+            }
+        }, tag -> {});
+
+        announce(TYPE_HEARTBEAT);
+
+        processor = new Thread(this::processLoop, "shard-processor");
+        processor.setDaemon(true);
+        processor.start();
+
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "shard-coordinator");
+            t.setDaemon(true);
+            return t;
+        });
+        // separate tasks: a rebalance may wait for a long job, heartbeats must not
+        scheduler.scheduleWithFixedDelay(() -> announceQuietly(TYPE_HEARTBEAT), heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        // the first rebalance waits one interval so peers already running are heard from
+        scheduler.scheduleWithFixedDelay(this::rebalanceQuietly, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "shard-coordinator-shutdown"));
+        log.info("Worker {} coordinating {} shard queues", workerId, shardQueues.size());
+    }
+
+    /**
+     * Release all shards and tell peers to take them over now rather than after the timeout.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        processingLock.lock();
+        try {
+            for (String shardQueue : new ArrayList<>(claimed.keySet())) {
+                release(shardQueue);
+            }
+        } finally {
+            processingLock.unlock();
+        }
+        if (processor != null) {
+            processor.interrupt();
+        }
+        announceQuietly(TYPE_LEAVE);
+    }
+
+    /**
+     * Recompute the assignment from current membership and claim/release the difference.
+     */
+    void rebalance() {
+        long now = System.currentTimeMillis();
+        peers.values().removeIf(lastSeen -> now - lastSeen > memberTimeoutMs);
+
+        TreeSet<String> members = new TreeSet<>(peers.keySet());
+        members.add(workerId);
+
+        Map<String, String> assignment = ShardAssignment.assign(shardQueues, members);
+
+        processingLock.lock();
+        try {
+            Channel stale;
+            while ((stale = abandoned.poll()) != null) {
+                closeQuietly(stale);
+            }
+            for (String shardQueue : shardQueues) {
+                boolean owned = workerId.equals(assignment.get(shardQueue));
+                if (owned && !claimed.containsKey(shardQueue)) {
+                    claim(shardQueue);
+                } else if (!owned && claimed.containsKey(shardQueue)) {
+                    release(shardQueue);
+                }
+            }
+        } finally {
+            processingLock.unlock();
+        }
+    }
+
+    private void processLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ShardDelivery next;
+            try {
+                next = deliveries.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            processingLock.lock();
+            try {
+                // released after this was delivered: closing the channel already requeued it
+                if (claimed.get(next.shardQueue()) != next.channel() || !next.channel().isOpen()) {
+                    log.info("Dropping delivery from released shard {}", next.shardQueue());
+                    continue;
+                }
+                jobHandler.handle(next.channel(), next.delivery());
+            } catch (Exception e) {
+                log.error("Job handler failed for shard {}", next.shardQueue(), e);
+            } finally {
+                processingLock.unlock();
+            }
+        }
+    }
+
+    // called with processingLock held
+    private void claim(String shardQueue) {
+        Channel shardChannel = null;
+        try {
+            shardChannel = conn.createChannel();
+            // one unacked job per shard: the most a release ever has to hand back
+            shardChannel.basicQos(1);
+            Channel ch = shardChannel;
+            claimed.put(shardQueue, ch);
+            ch.basicConsume(shardQueue, false, workerId + "-" + shardQueue,
+                    (consumerTag, delivery) -> deliveries.add(new ShardDelivery(shardQueue, ch, delivery)),
+                    consumerTag -> {
+                        // broker-side cancel (e.g. queue deleted); claimed again on the next rebalance
+                        if (claimed.remove(shardQueue, ch)) {
+                            abandoned.add(ch);
+                        }
+                    });
+            log.info("Claimed shard {}", shardQueue);
+        } catch (IOException e) {
+            log.error("Failed to claim shard {}", shardQueue, e);
+            claimed.remove(shardQueue);
+            closeQuietly(shardChannel);
+        }
+    }
+
+    // called with processingLock held, so no job of this shard is running
+    private void release(String shardQueue) {
+        Channel ch = claimed.remove(shardQueue);
+        // closing (not just cancelling) requeues the shard's unacked delivery for the next owner
+        closeQuietly(ch);
+        log.info("Released shard {}", shardQueue);
+    }
+
+    private static void closeQuietly(Channel ch) {
+        if (ch == null || !ch.isOpen()) {
+            return;
+        }
+        try {
+            ch.close();
+        } catch (Exception e) {
+            log.warn("Failed to close channel: {}", e.getMessage());
+        }
+    }
+
+    private void announce(String type) throws IOException {
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().type(type).build();
+        synchronized (membershipChannel) {
+            membershipChannel.basicPublish(membershipExchange, "", props, workerId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void announceQuietly(String type) {
+        try {
+            announce(type);
+        } catch (Exception e) {
+            log.warn("Failed to publish {}: {}", type, e.getMessage());
+        }
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (Exception e) {
+            log.error("Shard rebalance failed", e);
+        }
+    }
+}
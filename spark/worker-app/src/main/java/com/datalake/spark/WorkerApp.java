@@ -2,9 +2,20 @@ package com.datalake.spark;
 
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.Table;
+import org.apache.iceberg.spark.Spark3Util;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
@@ -12,10 +23,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
 
 import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
@@ -23,6 +34,12 @@ import io.minio.MinioClient;
 public class WorkerApp {
     private static final Logger log = LoggerFactory.getLogger(WorkerApp.class);
     private static final String QUEUE = System.getenv().getOrDefault("RABBITMQ_QUEUE", "file.processing.queue");
+    // Must match rabbitmq.queue.shards on the API, which routes jobs to {QUEUE}.{shard} by table name
+    private static final int QUEUE_SHARDS = Integer.parseInt(System.getenv().getOrDefault("RABBITMQ_QUEUE_SHARDS", "8"));
+    private static final String MEMBERSHIP_EXCHANGE = System.getenv().getOrDefault("RABBITMQ_MEMBERSHIP_EXCHANGE", "worker.membership");
+    private static final String STATUS_QUEUE = System.getenv().getOrDefault("RABBITMQ_STATUS_QUEUE", "job.status.queue");
+    // Set by the API's RabbitMQService when the job is published (epoch millis)
+    private static final String ENQUEUED_AT_HEADER = "x-enqueued-at";
 
     public static void main(String[] args) throws Exception {
         log.info("Starting Spark worker app");
@@ -47,35 +64,71 @@ public class WorkerApp {
         factory.setPassword(System.getenv().getOrDefault("RABBITMQ_PASS", "password123"));
 
         Connection conn = factory.newConnection();
+        // declarations only; each claimed shard is consumed on its own channel (see ShardCoordinator)
         Channel channel = conn.createChannel();
-        channel.queueDeclare(QUEUE, true, false, false, null);
+
+        // shard queues are single-active-consumer; arguments must match the API's RabbitConfig
+        List<String> shardQueues = new ArrayList<>();
+        for (int i = 0; i < QUEUE_SHARDS; i++) {
+            String shardQueue = QUEUE + "." + i;
+            channel.queueDeclare(shardQueue, true, false, false, Map.of("x-single-active-consumer", true));
+            shardQueues.add(shardQueue);
+        }
+        channel.queueDeclare(STATUS_QUEUE, true, false, false, null);
+        warnIfApiHasMoreShards(conn);
+
+        WorkerMetrics metrics = new WorkerMetrics();
+        metrics.startServer(Integer.parseInt(System.getenv().getOrDefault("METRICS_PORT", "9464")));
 
         ObjectMapper mapper = new ObjectMapper();
         // tolerate extra fields from the producer (e.g., userId, status, message)
         mapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+        ShardCoordinator.JobHandler jobHandler = (jobChannel, delivery) -> {
+            long receivedAt = System.currentTimeMillis();
+            Map<String, Long> timings = new LinkedHashMap<>();
+            String jobId = null;
             try {
                 String payload = new String(delivery.getBody());
                 log.info("Received message: {}", payload);
 
                 // Parse a simple job JSON (jobId, filePath, tableName)
                 JobMessage job = mapper.readValue(payload, JobMessage.class);
+                jobId = job.jobId;
+                // API stages (upload, redis_write) ride along in the payload; echoing them in the
+                // reports below is how they reach the stored job
+                if (job.stageTimings != null) {
+                    timings.putAll(job.stageTimings);
+                }
+
+                Map<String, Object> headers = delivery.getProperties().getHeaders();
+                Object enqueuedAt = headers != null ? headers.get(ENQUEUED_AT_HEADER) : null;
+                if (enqueuedAt instanceof Number) {
+                    stage(metrics, timings, "queue_wait", Math.max(0, receivedAt - ((Number) enqueuedAt).longValue()));
+                }
+
+                publishStatus(jobChannel, mapper, jobId, "processing", "Processing started", timings, null);
 
                 // Download object from MinIO
+                long start = System.nanoTime();
                 Path tmpDir = Files.createTempDirectory("spark-worker-");
                 Path outPath = tmpDir.resolve(job.fileName != null ? job.fileName : "upload");
 
+                long downloaded = 0;
                 try (InputStream in = minio.getObject(GetObjectArgs.builder().bucket(System.getenv().getOrDefault("MINIO_UPLOADS_BUCKET", "uploads")).object(job.filePath).build());
                      FileOutputStream fos = new FileOutputStream(outPath.toFile())) {
                     byte[] buf = new byte[8192];
                     int r;
                     while ((r = in.read(buf)) != -1) {
                         fos.write(buf, 0, r);
+                        downloaded += r;
                     }
                 }
+                stage(metrics, timings, "download", elapsedMs(start));
+                metrics.increment("datalake_worker_bytes_downloaded_total", downloaded);
 
                 // Read file into DataFrame
+                start = System.nanoTime();
                 String lower = outPath.toString().toLowerCase();
                 Dataset<Row> df;
                 if (lower.endsWith(".csv")) {
@@ -87,34 +140,139 @@ public class WorkerApp {
                 } else {
                     throw new IllegalArgumentException("Unsupported file type: " + outPath.toString());
                 }
+                stage(metrics, timings, "read", elapsedMs(start));
 
                 // Write DataFrame to Iceberg table via catalog 'local.db.table'
                 String table = job.tableName != null && !job.tableName.isBlank() ? job.tableName : "default_table";
                 String full = String.format("local.db.%s", table);
 
+                long writeStart = System.currentTimeMillis();
                 df.writeTo(full)
                         .using("iceberg")
                         .tableProperty("format-version", "2")
                         .createOrReplace();
+                long writeEnd = System.currentTimeMillis();
+
+                // Row/file/byte counts come from the committed snapshot summary instead of re-scanning the source.
+                // The snapshot timestamp is taken just before the catalog commit, so it splits the write call
+                // into data-file writing and metadata commit.
+                Table icebergTable = Spark3Util.loadIcebergTable(spark, full);
+                Snapshot snapshot = icebergTable.currentSnapshot();
+                Map<String, String> summary = snapshot != null ? snapshot.summary() : Map.of();
+                long committedAt = snapshot != null
+                        ? Math.min(writeEnd, Math.max(writeStart, snapshot.timestampMillis()))
+                        : writeEnd;
+                stage(metrics, timings, "write", committedAt - writeStart);
+                stage(metrics, timings, "commit", writeEnd - committedAt);
+
+                Map<String, Long> written = new LinkedHashMap<>();
+                written.put("rowsWritten", summaryValue(summary, "added-records"));
+                written.put("filesWritten", summaryValue(summary, "added-data-files"));
+                written.put("bytesWritten", summaryValue(summary, "added-files-size"));
+                metrics.increment("datalake_worker_rows_written_total", written.get("rowsWritten"));
+                metrics.increment("datalake_worker_files_written_total", written.get("filesWritten"));
+                metrics.increment("datalake_worker_bytes_written_total", written.get("bytesWritten"));
 
-                log.info("Wrote {} rows to Iceberg table {}", df.count(), full);
+                log.info("Wrote {} rows in {} files to Iceberg table {} - timings(ms): {}",
+                        written.get("rowsWritten"), written.get("filesWritten"), full, timings);
 
                 // Acknowledge
-                channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+                jobChannel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+                metrics.increment("datalake_worker_jobs_total{status=\"completed\"}", 1);
+                publishStatus(jobChannel, mapper, jobId, "completed",
+                        String.format("Wrote %d rows to %s", written.get("rowsWritten"), full), timings, written);
 
                 // cleanup
                 try { Files.deleteIfExists(outPath); Files.deleteIfExists(tmpDir); } catch (Exception ignored) {}
 
             } catch (Exception e) {
                 log.error("Failed to process message", e);
-                try { channel.basicNack(delivery.getEnvelope().getDeliveryTag(), false, false); } catch (Exception ex) { log.error("Failed to nack", ex); }
+                metrics.increment("datalake_worker_jobs_total{status=\"failed\"}", 1);
+                try { jobChannel.basicNack(delivery.getEnvelope().getDeliveryTag(), false, false); } catch (Exception ex) { log.error("Failed to nack", ex); }
+                publishStatus(jobChannel, mapper, jobId, "failed", "Processing failed: " + e.getMessage(), timings, null);
             }
         };
 
-        channel.basicConsume(QUEUE, false, deliverCallback, consumerTag -> {});
+        // Claim shard queues based on which workers are alive; shards move when workers join or leave
+        String workerId = System.getenv().getOrDefault("WORKER_ID",
+                InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID().toString().substring(0, 8));
+        long heartbeatMs = Long.parseLong(System.getenv().getOrDefault("WORKER_HEARTBEAT_MS", "5000"));
+        ShardCoordinator coordinator = new ShardCoordinator(workerId, conn, MEMBERSHIP_EXCHANGE,
+                shardQueues, jobHandler, heartbeatMs, heartbeatMs * 3);
+        coordinator.start();
+
+        // Keep the process running; re-check the shard count since the API may start (or restart) after us
+        while (true) {
+            TimeUnit.MINUTES.sleep(1);
+            warnIfApiHasMoreShards(conn);
+        }
+    }
+
+    /**
+     * The API declares its shard queues at startup. If it has one beyond our count, it routes
+     * tables to shards no worker consumes (its admission control then rejects uploads).
+     */
+    private static void warnIfApiHasMoreShards(Connection conn) {
+        String nextShard = QUEUE + "." + QUEUE_SHARDS;
+        Channel probe = null;
+        try {
+            probe = conn.createChannel();
+            // passive: fails (and closes the probe channel) if the queue does not exist
+            probe.queueDeclarePassive(nextShard);
+            log.warn("Shard queue {} exists but RABBITMQ_QUEUE_SHARDS={}: jobs routed to shards {} and above "
+                    + "are not consumed. Set it to the API's rabbitmq.queue.shards.", nextShard, QUEUE_SHARDS, QUEUE_SHARDS);
+        } catch (Exception e) {
+            log.debug("No shard queue beyond {}: {}", QUEUE_SHARDS, e.getMessage());
+        } finally {
+            if (probe != null && probe.isOpen()) {
+                try { probe.close(); } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void stage(WorkerMetrics metrics, Map<String, Long> timings, String stage, long durationMs) {
+        timings.put(stage, durationMs);
+        metrics.recordStage(stage, durationMs);
+    }
 
-        // Keep the process running
-        Thread.currentThread().join();
+    private static long summaryValue(Map<String, String> summary, String key) {
+        String value = summary.get(key);
+        if (value == null) {
+            return 0L;
+        }
+        try { return Long.parseLong(value); } catch (NumberFormatException e) { return 0L; }
+    }
+
+    /**
+     * Report job progress to the API on the status queue. Best effort: a failed report is logged
+     * and never fails the job itself.
+     */
+    private static void publishStatus(Channel channel, ObjectMapper mapper, String jobId, String status, String message,
+                                      Map<String, Long> timings, Map<String, Long> written) {
+        if (jobId == null) {
+            return;
+        }
+        try {
+            Map<String, Object> update = new LinkedHashMap<>();
+            update.put("jobId", jobId);
+            update.put("status", status);
+            update.put("message", message);
+            update.put("stageTimings", timings);
+            if (written != null) {
+                update.putAll(written);
+            }
+            AMQP.BasicProperties props = new AMQP.BasicProperties.Builder()
+                    .contentType("application/json")
+                    .deliveryMode(2)
+                    .build();
+            channel.basicPublish("", STATUS_QUEUE, props, mapper.writeValueAsString(update).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("Failed to publish status for job {}: {}", jobId, e.getMessage());
+        }
     }
 
     static class JobMessage {
@@ -122,5 +280,6 @@ public class WorkerApp {
         public String filePath;
         public String fileName;
         public String tableName;
+        public Map<String, Long> stageTimings;
     }
 }
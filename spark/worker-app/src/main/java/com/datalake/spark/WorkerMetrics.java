@@ -0,0 +1,118 @@
+package com.datalake.spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stage timers and counters for the worker, served in the Prometheus text format on /metrics.
+ *
+ * Deliberately dependency-free: the worker jar is shaded into the Spark image, and a
+ * metrics library would have to be relocated alongside everything Spark already ships.
+ */
+public class WorkerMetrics {
+    private static final Logger log = LoggerFactory.getLogger(WorkerMetrics.class);
+
+    // Bucket bounds in seconds; spans sub-second Redis-style calls up to multi-minute Spark writes
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600};
+
+    private static final String STAGE_METRIC = "datalake_worker_stage_seconds";
+
+    private final Map<String, Histogram> stages = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    /**
+     * Record how long a pipeline stage took for one job.
+     */
+    public void recordStage(String stage, long durationMs) {
+        stages.computeIfAbsent(stage, s -> new Histogram()).observe(durationMs / 1000.0);
+    }
+
+    /**
+     * Add to a monotonically increasing counter. The name must already carry the _total suffix
+     * and any labels, e.g. {@code datalake_worker_jobs_total{status="completed"}}.
+     */
+    public void increment(String series, long amount) {
+        counters.computeIfAbsent(series, s -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP ").append(STAGE_METRIC).append(" Latency of each worker-side ingestion stage\n");
+        sb.append("# TYPE ").append(STAGE_METRIC).append(" histogram\n");
+        for (Map.Entry<String, Histogram> e : stages.entrySet()) {
+            e.getValue().appendTo(sb, e.getKey());
+        }
+
+        String lastName = null;
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            String series = e.getKey();
+            int brace = series.indexOf('{');
+            String name = brace >= 0 ? series.substring(0, brace) : series;
+            if (!name.equals(lastName)) {
+                sb.append("# TYPE ").append(name).append(" counter\n");
+                lastName = name;
+            }
+            sb.append(series).append(' ').append(e.getValue().sum()).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Serve {@link #scrape()} on http://0.0.0.0:{port}/metrics from a background thread.
+     */
+    public void startServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        log.info("Serving worker metrics on port {}", port);
+    }
+
+    private static class Histogram {
+        private final long[] bucketCounts = new long[BUCKETS.length];
+        private long count;
+        private double sum;
+
+        synchronized void observe(double seconds) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    bucketCounts[i]++;
+                }
+            }
+            count++;
+            sum += seconds;
+        }
+
+        synchronized void appendTo(StringBuilder sb, String stage) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                sb.append(STAGE_METRIC).append("_bucket{stage=\"").append(stage)
+                        .append("\",le=\"").append(BUCKETS[i]).append("\"} ").append(bucketCounts[i]).append('\n');
+            }
+            sb.append(STAGE_METRIC).append("_bucket{stage=\"").append(stage)
+                    .append("\",le=\"+Inf\"} ").append(count).append('\n');
+            sb.append(STAGE_METRIC).append("_sum{stage=\"").append(stage).append("\"} ").append(sum).append('\n');
+            sb.append(STAGE_METRIC).append("_count{stage=\"").append(stage).append("\"} ").append(count).append('\n');
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.datalake.spark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ShardAssignmentTest {
+
+    private static List<String> shards(int count) {
+        List<String> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add("file.processing.queue." + i);
+        }
+        return shards;
+    }
+
+    private static List<String> members(int count) {
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add("worker-" + i);
+        }
+        return members;
+    }
+
+    private static int moved(Map<String, String> before, Map<String, String> after) {
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals(after.get(entry.getKey()))) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    @Test
+    void everyShardAssignedAndLoadBounded() {
+        for (int shardCount : new int[] {8, 16, 64}) {
+            for (int memberCount = 1; memberCount <= 9; memberCount++) {
+                List<String> shards = shards(shardCount);
+                List<String> members = members(memberCount);
+                Map<String, String> assignment = ShardAssignment.assign(shards, members);
+
+                assertEquals(shards.size(), assignment.size());
+                Map<String, Integer> load = new HashMap<>();
+                for (String shard : shards) {
+                    String owner = assignment.get(shard);
+                    assertTrue(members.contains(owner), shard + " -> " + owner);
+                    load.merge(owner, 1, Integer::sum);
+                }
+
+                int capacity = (shardCount + memberCount - 1) / memberCount;
+                for (int perMember : load.values()) {
+                    assertTrue(perMember <= capacity, shardCount + " shards / " + memberCount + " members: " + load);
+                }
+            }
+        }
+    }
+
+    @Test
+    void assignmentDoesNotDependOnMemberOrder() {
+        List<String> shards = shards(16);
+        List<String> members = members(5);
+        List<String> reversed = new ArrayList<>(members);
+        Collections.reverse(reversed);
+
+        assertEquals(ShardAssignment.assign(shards, members), ShardAssignment.assign(shards, reversed));
+    }
+
+    @Test
+    void addingOrRemovingAMemberMovesFewShards() {
+        List<String> shards = shards(64);
+        for (int memberCount = 2; memberCount <= 8; memberCount++) {
+            Map<String, String> before = ShardAssignment.assign(shards, members(memberCount));
+            Map<String, String> after = ShardAssignment.assign(shards, members(memberCount + 1));
+
+            // the new member takes about 64 / (n + 1) shards; allow the load cap to push a few more around
+            int fairShare = (shards.size() + memberCount) / (memberCount + 1);
+            int moved = moved(before, after);
+            assertTrue(moved <= 2 * fairShare, memberCount + " -> " + (memberCount + 1) + " members moved " + moved);
+            // removal is the same transition in reverse
+            assertEquals(moved, moved(after, before));
+        }
+    }
+}